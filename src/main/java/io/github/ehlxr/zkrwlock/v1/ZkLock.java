@@ -6,6 +6,11 @@ import org.apache.zookeeper.data.Stat;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 public abstract class ZkLock implements Closeable {
 
@@ -21,7 +26,9 @@ public abstract class ZkLock implements Closeable {
     protected static ZooKeeper zooKeeper;
 
     // 如果断开链接了，就需要全部暂停等待zk锁从新链接成功
-    private static final Object reconnectLock = new Object();
+    // 每次重连成功计数加一，等待线程登记在队列中，重连后逐个定向唤醒
+    private static final AtomicInteger reconnectCount = new AtomicInteger();
+    private static final Queue<Thread> reconnectWaiters = new ConcurrentLinkedQueue<>();
 
     protected String path ;
 
@@ -29,9 +36,7 @@ public abstract class ZkLock implements Closeable {
         if (event.getType() == Watcher.Event.EventType.None) {
             if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
                 System.out.println("重新连接成功!");
-                synchronized (reconnectLock){
-                    reconnectLock.notifyAll();
-                }
+                signalReconnect();
             }
         }
 
@@ -41,9 +46,7 @@ public abstract class ZkLock implements Closeable {
             zooKeeper = new ZooKeeper(SERVER, TIMEOUT,event -> {
                 if (event.getState() == Watcher.Event.KeeperState.SyncConnected) {
                     System.out.println("重新连接成功!");
-                    synchronized (reconnectLock){
-                        reconnectLock.notifyAll();
-                    }
+                    signalReconnect();
                 }
             });
 
@@ -57,6 +60,7 @@ public abstract class ZkLock implements Closeable {
     }
 
     public void init() throws Exception{
+        int reconnected = reconnectCount.get();
         try {
             // 创建持久节点 /lock
             if (zooKeeper.exists(ROOTLOCK, false) == null){
@@ -71,15 +75,39 @@ public abstract class ZkLock implements Closeable {
             System.out.println(e);
             if (e instanceof KeeperException.ConnectionLossException){
                 // zookeeper 服务端断开连接，等待重新链接
-                synchronized (reconnectLock){
-                    reconnectLock.wait();
-                }
+                awaitReconnect(reconnected);
 
                 init();
             }
         }
     }
 
+    private static void signalReconnect() {
+        reconnectCount.incrementAndGet();
+        Thread waiter;
+        while ((waiter = reconnectWaiters.poll()) != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+
+    /**
+     * 阻塞直到 reconnected 之后发生过一次重连，不占用对象监视器，虚拟线程等待时不会钉住载体线程
+     */
+    private static void awaitReconnect(int reconnected) throws InterruptedException {
+        Thread current = Thread.currentThread();
+        reconnectWaiters.add(current);
+        try {
+            while (reconnectCount.get() == reconnected) {
+                LockSupport.park(reconnectWaiters);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        } finally {
+            reconnectWaiters.remove(current);
+        }
+    }
+
     @Override
     public void close() throws IOException {
         try {
@@ -95,12 +123,14 @@ public abstract class ZkLock implements Closeable {
     protected void cirLock(String path, List<String> list, int index) throws Exception {
         // 监听上一个读锁
         String lastPath = list.get(index - 1);
+        // 只唤醒监听这个节点的线程
+        Thread waiter = Thread.currentThread();
+        AtomicBoolean deleted = new AtomicBoolean(false);
         Stat stat = zooKeeper.exists(READ_WRITE_LOCK_PATH + "/" + lastPath, event -> {
             //  KeeperState  DisConnected Exipred 发生，临时节点可能也会被删除
             if (event.getType() == Watcher.Event.EventType.NodeDeleted) {
-                synchronized (this) {
-                    this.notify();
-                }
+                deleted.set(true);
+                LockSupport.unpark(waiter);
             }
             if (event.getState() == Watcher.Event.KeeperState.Disconnected ||
             event.getState() == Watcher.Event.KeeperState.Expired){
@@ -117,8 +147,11 @@ public abstract class ZkLock implements Closeable {
             attemptLock(path);
         } else {
             // 阻塞，等待锁释放
-            synchronized (this) {
-                this.wait();
+            while (!deleted.get()) {
+                LockSupport.park(this);
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
             }
             attemptLock(path);
         }
@@ -0,0 +1,91 @@
+package io.github.ehlxr.zkrwlock.v2;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 紧凑的二进制格式：
+ * magic(1) | version(1) | requestTime(8) | threadId(8) | host | threadName | purpose
+ * 字符串为 2 字节无符号长度加 UTF-8 内容，超过 65535 字节时截断，purpose 为空时长度为 0
+ *
+ * @author ehlxr
+ */
+public class BinaryOwnerCodec implements OwnerCodec {
+    public static final BinaryOwnerCodec INSTANCE = new BinaryOwnerCodec();
+
+    private static final byte MAGIC = 'L';
+    private static final byte VERSION = 1;
+    private static final int MAX_STRING_LENGTH = 0xFFFF;
+
+    @Override
+    public byte[] encode(LockOwner owner) {
+        byte[] host = bytes(owner.getHost());
+        byte[] threadName = bytes(owner.getThreadName());
+        byte[] purpose = bytes(owner.getPurpose());
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 + 8 + 8 + 3 * 2 + host.length + threadName.length + purpose.length);
+        buffer.put(MAGIC)
+                .put(VERSION)
+                .putLong(owner.getRequestTime())
+                .putLong(owner.getThreadId());
+        putString(buffer, host);
+        putString(buffer, threadName);
+        putString(buffer, purpose);
+        return buffer.array();
+    }
+
+    @Override
+    public LockOwner decode(byte[] data) {
+        if (data == null || data.length < 2 || data[0] != MAGIC || data[1] != VERSION) {
+            return null;
+        }
+
+        try {
+            // 直接包装节点数据，不复制字节数组
+            ByteBuffer buffer = ByteBuffer.wrap(data, 2, data.length - 2);
+            long requestTime = buffer.getLong();
+            long threadId = buffer.getLong();
+            String host = getString(buffer);
+            String threadName = getString(buffer);
+            String purpose = getString(buffer);
+            return new LockOwner(host, threadId, threadName, requestTime, purpose.isEmpty() ? null : purpose);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length <= MAX_STRING_LENGTH) {
+            return bytes;
+        }
+
+        // 持有者记录只用于诊断，过长时截断而不是让加锁失败；截断位置退到 UTF-8 字符的首字节
+        int length = MAX_STRING_LENGTH;
+        while (length > 0 && (bytes[length] & 0xC0) == 0x80) {
+            length--;
+        }
+        return Arrays.copyOf(bytes, length);
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        buffer.putShort((short) value.length).put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getShort() & 0xFFFF;
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+
+        String value = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
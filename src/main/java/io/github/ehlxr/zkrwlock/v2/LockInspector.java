@@ -0,0 +1,171 @@
+package io.github.ehlxr.zkrwlock.v2;
+
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.curator.framework.recipes.cache.CuratorCache;
+import org.apache.curator.framework.recipes.cache.CuratorCacheAccessor;
+import org.apache.curator.framework.recipes.cache.CuratorCacheListener;
+import org.apache.curator.utils.ZKPaths;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Collectors;
+
+/**
+ * 锁诊断：列出某个锁资源当前的持有者与等待者
+ * 通过缓存锁资源下的子节点（包含数据）实现，查询时直接解析缓存中的节点数据，不会再访问 zk
+ *
+ * @author ehlxr
+ */
+public class LockInspector implements Closeable {
+    private final String path;
+    private final OwnerCodec ownerCodec;
+    private final CuratorCache cache;
+
+    public LockInspector(String name) throws Exception {
+        this(name, BinaryOwnerCodec.INSTANCE);
+    }
+
+    public LockInspector(String name, OwnerCodec ownerCodec) throws Exception {
+        this.path = "/" + name;
+        this.ownerCodec = ownerCodec;
+        this.cache = CuratorCache.build(ZkLock.ZK_CLIENT, path);
+
+        // 等待初始缓存建立完成，构造后即可查询
+        CountDownLatch initialized = new CountDownLatch(1);
+        cache.listenable().addListener(CuratorCacheListener.builder()
+                .forInitialized(initialized::countDown)
+                .build());
+        cache.start();
+        initialized.await();
+    }
+
+    public Snapshot inspect() {
+        // 缓存包含锁资源节点本身，只取它的子节点
+        return inspect(cache.stream()
+                .filter(CuratorCacheAccessor.parentPathFilter(path))
+                .collect(Collectors.toList()), ownerCodec);
+    }
+
+    /**
+     * 按 {@link ZkLock} 的加锁规则由锁资源下的子节点推算持有者与等待者，只读取节点，不需要加锁方额外写入：
+     * 没有写锁时读锁都持有锁；有写锁时只有排在第一个写锁之前的读锁持有锁；
+     * 第一个写锁在没有任何读锁时持有锁，否则它在等待最早的读锁（即使这个读锁排在它后面）；其余节点都在等待。
+     * <p>
+     * 推算可能出错的情况：排在第一个写锁之前的读锁如果在写锁创建之后才读取子节点，实际在等待；
+     * 写锁在监听的读锁释放后获得锁而仍有其他读锁时，会被认为在等待
+     */
+    public static Snapshot inspect(Collection<ChildData> children, OwnerCodec ownerCodec) {
+        List<Node> nodes = new ArrayList<>();
+        for (ChildData data : children) {
+            String node = ZKPaths.getNodeFromPath(data.getPath());
+            ZkLock.ReadWriteType type = ZkLock.ReadWriteType.ofNode(node);
+            if (type != null) {
+                nodes.add(new Node(node, type, ZkLock.ReadWriteType.sequence(node), ownerCodec.decode(data.getData())));
+            }
+        }
+        nodes.sort(Comparator.comparingLong(Node::getSequence));
+
+        Node firstWrite = nodes.stream()
+                .filter(node -> node.getType() == ZkLock.ReadWriteType.WRITE)
+                .findFirst()
+                .orElse(null);
+        boolean hasRead = nodes.stream().anyMatch(node -> node.getType() == ZkLock.ReadWriteType.READ);
+
+        List<Node> holders = new ArrayList<>();
+        List<Node> waiters = new ArrayList<>();
+        for (Node node : nodes) {
+            boolean holder;
+            if (node.getType() == ZkLock.ReadWriteType.READ) {
+                holder = firstWrite == null || node.getSequence() < firstWrite.getSequence();
+            } else {
+                holder = node == firstWrite && !hasRead;
+            }
+            (holder ? holders : waiters).add(node);
+        }
+
+        return new Snapshot(holders, waiters);
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+
+    /**
+     * 某一时刻的持有者与等待者，均按排队顺序排列
+     */
+    public static class Snapshot {
+        private final List<Node> holders;
+        private final List<Node> waiters;
+
+        Snapshot(List<Node> holders, List<Node> waiters) {
+            this.holders = Collections.unmodifiableList(holders);
+            this.waiters = Collections.unmodifiableList(waiters);
+        }
+
+        public List<Node> getHolders() {
+            return holders;
+        }
+
+        public List<Node> getWaiters() {
+            return waiters;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" +
+                    "holders=" + holders +
+                    ", waiters=" + waiters +
+                    '}';
+        }
+    }
+
+    /**
+     * 锁资源下的一个读写节点，未记录持有者时 owner 为 null
+     */
+    public static class Node {
+        private final String name;
+        private final ZkLock.ReadWriteType type;
+        private final long sequence;
+        private final LockOwner owner;
+
+        Node(String name, ZkLock.ReadWriteType type, long sequence, LockOwner owner) {
+            this.name = name;
+            this.type = type;
+            this.sequence = sequence;
+            this.owner = owner;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public ZkLock.ReadWriteType getType() {
+            return type;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public LockOwner getOwner() {
+            return owner;
+        }
+
+        @Override
+        public String toString() {
+            return "Node{" +
+                    "name='" + name + '\'' +
+                    ", type=" + type +
+                    ", sequence=" + sequence +
+                    ", owner=" + owner +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package io.github.ehlxr.zkrwlock.v2;
+
+import java.net.InetAddress;
+
+/**
+ * 锁节点中记录的持有者信息，在创建锁节点时写入，用于排查谁在持有或等待锁
+ *
+ * @author ehlxr
+ */
+public class LockOwner {
+    private static volatile String localHost;
+
+    private final String host;
+    private final long threadId;
+    private final String threadName;
+    /**
+     * 创建锁节点（发起加锁）的时间戳，毫秒
+     */
+    private final long requestTime;
+    private final String purpose;
+
+    public LockOwner(String host, long threadId, String threadName, long requestTime, String purpose) {
+        this.host = host;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.requestTime = requestTime;
+        this.purpose = purpose;
+    }
+
+    /**
+     * 当前线程作为持有者
+     */
+    public static LockOwner current(String purpose) {
+        Thread thread = Thread.currentThread();
+        return new LockOwner(localHost(), thread.getId(), thread.getName(), System.currentTimeMillis(), purpose);
+    }
+
+    private static String localHost() {
+        // 主机名解析可能很慢，只解析一次
+        String host = localHost;
+        if (host == null) {
+            try {
+                host = InetAddress.getLocalHost().getHostName();
+            } catch (Exception e) {
+                host = "unknown";
+            }
+            localHost = host;
+        }
+        return host;
+    }
+
+    public String getHost() {
+        return host;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getRequestTime() {
+        return requestTime;
+    }
+
+    public String getPurpose() {
+        return purpose;
+    }
+
+    @Override
+    public String toString() {
+        return "LockOwner{" +
+                "host='" + host + '\'' +
+                ", threadId=" + threadId +
+                ", threadName='" + threadName + '\'' +
+                ", requestTime=" + requestTime +
+                ", purpose='" + purpose + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,18 @@
+package io.github.ehlxr.zkrwlock.v2;
+
+/**
+ * 锁节点数据与 {@link LockOwner} 之间的序列化方式
+ *
+ * @author ehlxr
+ */
+public interface OwnerCodec {
+    /**
+     * 序列化为锁节点数据
+     */
+    byte[] encode(LockOwner owner);
+
+    /**
+     * 直接从节点数据解析，无法识别的数据（例如未开启持有者记录的节点）返回 null
+     */
+    LockOwner decode(byte[] data);
+}
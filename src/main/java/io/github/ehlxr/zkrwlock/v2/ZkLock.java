@@ -2,15 +2,27 @@ package io.github.ehlxr.zkrwlock.v2;
 
 import org.apache.curator.framework.CuratorFramework;
 import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.framework.api.BackgroundPathAndBytesable;
+import org.apache.curator.framework.api.CuratorEvent;
+import org.apache.curator.framework.api.CuratorWatcher;
 import org.apache.curator.framework.api.GetChildrenBuilder;
+import org.apache.curator.framework.api.PathAndBytesable;
 import org.apache.curator.framework.imps.CuratorFrameworkState;
 import org.apache.curator.framework.recipes.cache.ChildData;
 import org.apache.curator.framework.recipes.cache.NodeCache;
 import org.apache.curator.retry.RetryOneTime;
 import org.apache.zookeeper.CreateMode;
+import org.apache.zookeeper.KeeperException;
+import org.apache.zookeeper.Watcher;
 import org.apache.zookeeper.ZooDefs;
+import org.apache.zookeeper.data.Stat;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 import java.util.stream.Collectors;
 
 /**
@@ -26,9 +38,18 @@ public class ZkLock {
     private static final String ROOTLOCK = "lock";
     protected static final String SERVER = "localhost:2181";
     protected static final Integer TIMEOUT = 2000000;
+    /**
+     * 单次等待上一个锁释放的最长时间，超时后重新判断一次
+     */
+    private static final long WAIT_TIMEOUT_MS = 1000;
     protected static final CuratorFramework ZK_CLIENT;
     private final String name;
     private final ReadWriteType readWriteType;
+    /**
+     * 写入锁节点的持有者用途说明，ownerCodec 为 null 时不记录持有者
+     */
+    private final String purpose;
+    private final OwnerCodec ownerCodec;
     public String path;
     /**
      * 是否可以获取写锁的标志位，获取写锁的条件是
@@ -36,7 +57,11 @@ public class ZkLock {
      * 这个标志为同样可以监听第二个写锁监听结束后变成第一个写锁的情况.
      * 判断是否可以获得写锁的标志就是要么 是 写锁的第一个要么就是上一个监听的回掉生效了
      */
-    private Boolean shouldWrite = false;
+    private volatile boolean shouldWrite = false;
+    /**
+     * 流水线模式：创建节点与读取子节点同时发出，写锁在上一个写锁的删除事件到达时直接获得锁
+     */
+    private volatile boolean pipelined = false;
 
     static {
         ZK_CLIENT = CuratorFrameworkFactory.builder()
@@ -55,8 +80,21 @@ public class ZkLock {
     }
 
     public ZkLock(String name, ReadWriteType readWriteType) {
+        this(name, readWriteType, null, null);
+    }
+
+    /**
+     * 创建锁节点时写入持有者信息，可通过 {@link LockInspector} 查看
+     */
+    public ZkLock(String name, ReadWriteType readWriteType, String purpose) {
+        this(name, readWriteType, purpose, BinaryOwnerCodec.INSTANCE);
+    }
+
+    public ZkLock(String name, ReadWriteType readWriteType, String purpose, OwnerCodec ownerCodec) {
         this.name = name;
         this.readWriteType = readWriteType;
+        this.purpose = purpose;
+        this.ownerCodec = ownerCodec;
 
         try {
             if (ZK_CLIENT.checkExists().forPath("/" + name) == null) {
@@ -71,13 +109,26 @@ public class ZkLock {
         }
     }
 
+    /**
+     * 开启流水线模式，写锁排队较多时可减少每次交接的 zk 往返次数
+     */
+    public void setPipelined(boolean pipelined) {
+        this.pipelined = pipelined;
+    }
+
     public void lock() throws Exception {
-        path = ZK_CLIENT.create()
+        // 未记录持有者时为 null，使用 curator 默认的节点数据
+        byte[] data = ownerCodec == null ? null : ownerCodec.encode(LockOwner.current(purpose));
+        BackgroundPathAndBytesable<String> create = ZK_CLIENT.create()
                 .creatingParentsIfNeeded()
                 .withMode(CreateMode.EPHEMERAL_SEQUENTIAL)
-                .withACL(ZooDefs.Ids.OPEN_ACL_UNSAFE)
-                .forPath("/" + name + "/" + readWriteType.type);
-        attemptLock(path);
+                .withACL(ZooDefs.Ids.OPEN_ACL_UNSAFE);
+        if (pipelined) {
+            pipelinedLock(create, data);
+        } else {
+            path = forPath(create, getPath() + "/" + readWriteType.type, data);
+            attemptLock(path);
+        }
     }
 
     public void unLock() {
@@ -90,10 +141,68 @@ public class ZkLock {
         }
     }
 
+    /**
+     * 创建节点与读取子节点在同一会话内连续发出，zk 按顺序处理同一会话的请求，
+     * 读到的子节点中已包含刚创建的节点，两个请求只需等待一次往返
+     */
+    private void pipelinedLock(BackgroundPathAndBytesable<String> create, byte[] data) throws Exception {
+        CompletableFuture<String> created = new CompletableFuture<>();
+        CompletableFuture<List<String>> children = new CompletableFuture<>();
+        forPath(create.inBackground((client, event) -> complete(created, event, event.getName())),
+                getPath() + "/" + readWriteType.type, data);
+        ZK_CLIENT.getChildren()
+                .inBackground((client, event) -> complete(children, event, event.getChildren()))
+                .forPath(getPath());
+
+        path = await(created);
+        List<String> list;
+        try {
+            list = await(children);
+        } catch (KeeperException e) {
+            // 节点已经创建，读取子节点单独失败（例如需要先创建父节点）时不能直接抛出，否则会留下一直占着锁的节点
+            list = null;
+        }
+
+        if (list != null && list.contains(path.substring(getPath().length() + 1))) {
+            attemptLock(path, list);
+        } else {
+            // 读取失败或连接重试时两个请求被重新排序，退回到单独读取
+            attemptLock(path);
+        }
+    }
+
+    /**
+     * data 为 null 时使用 curator 默认的节点数据
+     */
+    private static <T> T forPath(PathAndBytesable<T> builder, String path, byte[] data) throws Exception {
+        return data == null ? builder.forPath(path) : builder.forPath(path, data);
+    }
+
+    private static <T> void complete(CompletableFuture<T> future, CuratorEvent event, T value) {
+        if (event.getResultCode() == KeeperException.Code.OK.intValue()) {
+            future.complete(value);
+        } else {
+            future.completeExceptionally(KeeperException.create(KeeperException.Code.get(event.getResultCode()), event.getPath()));
+        }
+    }
+
+    private static <T> T await(CompletableFuture<T> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception ? (Exception) cause : e;
+        }
+    }
+
     protected void attemptLock(String path) throws Exception {
         GetChildrenBuilder children = ZK_CLIENT.getChildren();
         List<String> list = children.forPath(getPath());
 
+        attemptLock(path, list);
+    }
+
+    private void attemptLock(String path, List<String> list) throws Exception {
         List<String> writeList = list.stream()
                 .filter(data -> data.contains(ReadWriteType.WRITE.type))
                 .sorted(String::compareTo)
@@ -136,8 +245,13 @@ public class ZkLock {
                     }
                 } else {
                     // 只需要监听前一个写锁的释放即可
-                    String lastPath = writeList.get(writeList.lastIndexOf(name) - 1);
-                    cirLock(lastPath);
+                    int index = writeList.lastIndexOf(name);
+                    String lastPath = writeList.get(index - 1);
+                    if (pipelined && (readList.size() == 0 || ReadWriteType.sequence(readList.get(0)) > ReadWriteType.sequence(lastPath))) {
+                        handOff(lastPath, index > 1 ? writeList.get(index - 2) : null);
+                    } else {
+                        cirLock(lastPath);
+                    }
                 }
             }
         }
@@ -150,24 +264,116 @@ public class ZkLock {
 
         nodeCache.start();
 
+        // 只唤醒等待这个节点的线程，不占用对象监视器，虚拟线程阻塞时不会钉住载体线程
+        Thread waiter = Thread.currentThread();
+        AtomicBoolean released = new AtomicBoolean(false);
         nodeCache.getListenable().addListener(() -> {
             ChildData currentData = nodeCache.getCurrentData();
             if (currentData == null) {
-                synchronized (this) {
-                    shouldWrite = true;
-                    notifyAll();
-
-                }
+                shouldWrite = true;
+                released.set(true);
+                LockSupport.unpark(waiter);
             }
         });
 
-        synchronized (this) {
-            wait(1000);
+        try {
+            park(released);
+        } finally {
+            nodeCache.close();
         }
 
         attemptLock(path);
     }
 
+    /**
+     * 流水线模式下写锁之间的交接，调用时已确认没有比上一个写锁更早的读锁。
+     * 上一个写锁持有锁时，它的 NodeDeleted 事件就说明轮到自己，直接获得锁，不再访问 zk。
+     * 上一个写锁排在第一个时（beforeLastPath 为 null）它就是持有者；否则同时监听再前一个写锁，
+     * 它被删除后在后台读取一次子节点，确认上一个写锁已排在第一个。这次读取发生在上一个写锁持有锁期间，不在交接路径上。
+     * 无法确认时仍按 attemptLock 重新判断
+     */
+    private void handOff(String lastPath, String beforeLastPath) throws Exception {
+        Thread waiter = Thread.currentThread();
+        AtomicBoolean held = new AtomicBoolean(beforeLastPath == null);
+        AtomicBoolean granted = new AtomicBoolean(false);
+        AtomicBoolean released = new AtomicBoolean(false);
+
+        if (beforeLastPath != null) {
+            Stat beforeLast = ZK_CLIENT.checkExists()
+                    .usingWatcher((CuratorWatcher) event -> {
+                        if (event.getType() == Watcher.Event.EventType.NodeDeleted) {
+                            confirmHeld(lastPath, held);
+                        }
+                    })
+                    .forPath(getPath() + "/" + beforeLastPath);
+            if (beforeLast == null) {
+                confirmHeld(lastPath, held);
+            }
+        }
+
+        // 直接监听上一个节点，事件本身即可判断，不经过缓存再读取一次
+        Stat stat = ZK_CLIENT.checkExists()
+                .usingWatcher((CuratorWatcher) event -> {
+                    if (event.getType() == Watcher.Event.EventType.NodeDeleted) {
+                        granted.set(held.get());
+                        released.set(true);
+                        LockSupport.unpark(waiter);
+                    }
+                })
+                .forPath(getPath() + "/" + lastPath);
+        if (stat == null) {
+            granted.set(held.get());
+            released.set(true);
+        }
+
+        while (!released.get()) {
+            park(released);
+            // 等待超时，事件可能因连接问题丢失，检查一次节点是否还在
+            if (!released.get() && ZK_CLIENT.checkExists().forPath(getPath() + "/" + lastPath) == null) {
+                granted.set(held.get());
+                released.set(true);
+            }
+        }
+
+        if (!granted.get()) {
+            attemptLock(path);
+        }
+    }
+
+    /**
+     * 后台读取子节点，node 前面已经没有任何读写节点时说明它持有锁
+     */
+    private void confirmHeld(String node, AtomicBoolean held) throws Exception {
+        long sequence = ReadWriteType.sequence(node);
+        ZK_CLIENT.getChildren()
+                .inBackground((client, event) -> {
+                    if (event.getResultCode() == KeeperException.Code.OK.intValue()
+                            && event.getChildren().contains(node)
+                            && event.getChildren().stream()
+                            .noneMatch(child -> ReadWriteType.ofNode(child) != null && ReadWriteType.sequence(child) < sequence)) {
+                        held.set(true);
+                    }
+                })
+                .forPath(getPath());
+    }
+
+    /**
+     * 阻塞当前线程，直到监听回调置位 released 或等待超时
+     */
+    private void park(AtomicBoolean released) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(WAIT_TIMEOUT_MS);
+        while (!released.get()) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return;
+            }
+            LockSupport.parkNanos(this, remaining);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+        }
+    }
+
     public enum ReadWriteType {
         /**
          * 锁类型
@@ -179,6 +385,29 @@ public class ZkLock {
         ReadWriteType(String type) {
             this.type = type;
         }
+
+        /**
+         * 根据锁节点名判断类型，不是读写节点返回 null
+         */
+        static ReadWriteType ofNode(String node) {
+            for (ReadWriteType type : values()) {
+                if (node.startsWith(type.type)) {
+                    return type;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 有序节点名以 10 位序号结尾，读写节点共用一个序号
+         */
+        static long sequence(String node) {
+            try {
+                return Long.parseLong(node.substring(node.length() - 10));
+            } catch (RuntimeException e) {
+                return Long.MAX_VALUE;
+            }
+        }
     }
 
     private String getPath() {
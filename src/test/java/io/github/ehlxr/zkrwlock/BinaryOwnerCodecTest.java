@@ -0,0 +1,90 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 xrv <xrg@live.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.ehlxr.zkrwlock;
+
+import io.github.ehlxr.zkrwlock.v2.BinaryOwnerCodec;
+import io.github.ehlxr.zkrwlock.v2.LockOwner;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author ehlxr
+ * @since 2026-10-19 10:20.
+ */
+public class BinaryOwnerCodecTest {
+    private final BinaryOwnerCodec codec = BinaryOwnerCodec.INSTANCE;
+
+    @Test
+    public void roundTrip() {
+        LockOwner owner = new LockOwner("host-01", 42L, "worker-1", 1612345678901L, "导出报表");
+        LockOwner decoded = codec.decode(codec.encode(owner));
+
+        assertEquals("host-01", decoded.getHost());
+        assertEquals(42L, decoded.getThreadId());
+        assertEquals("worker-1", decoded.getThreadName());
+        assertEquals(1612345678901L, decoded.getRequestTime());
+        assertEquals("导出报表", decoded.getPurpose());
+    }
+
+    @Test
+    public void emptyPurpose() {
+        LockOwner owner = new LockOwner("host-01", 1L, "main", 0L, null);
+
+        assertNull(codec.decode(codec.encode(owner)).getPurpose());
+    }
+
+    @Test
+    public void unknownData() throws Exception {
+        // 未记录持有者时 curator 默认写入本机地址
+        assertNull(codec.decode(InetAddress.getLocalHost().getHostAddress().getBytes()));
+        assertNull(codec.decode("".getBytes()));
+        assertNull(codec.decode(null));
+
+        byte[] truncated = codec.encode(LockOwner.current("purpose"));
+        byte[] data = new byte[truncated.length - 3];
+        System.arraycopy(truncated, 0, data, 0, data.length);
+        assertNull(codec.decode(data));
+    }
+
+    @Test
+    public void truncateLongField() {
+        StringBuilder purpose = new StringBuilder("a");
+        while (purpose.length() < 30000) {
+            // 三字节字符，截断位置落在字符中间
+            purpose.append("锁");
+        }
+        LockOwner owner = new LockOwner("host-01", 1L, "main", 0L, purpose.toString());
+        LockOwner decoded = codec.decode(codec.encode(owner));
+
+        assertEquals(65533, decoded.getPurpose().getBytes(StandardCharsets.UTF_8).length);
+        assertTrue(purpose.toString().startsWith(decoded.getPurpose()));
+    }
+}
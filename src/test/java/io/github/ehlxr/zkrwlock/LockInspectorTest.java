@@ -0,0 +1,123 @@
+/*
+ * The MIT License (MIT)
+ *
+ * Copyright © 2020 xrv <xrg@live.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package io.github.ehlxr.zkrwlock;
+
+import io.github.ehlxr.zkrwlock.v2.BinaryOwnerCodec;
+import io.github.ehlxr.zkrwlock.v2.LockInspector;
+import io.github.ehlxr.zkrwlock.v2.LockOwner;
+import org.apache.curator.framework.recipes.cache.ChildData;
+import org.apache.zookeeper.data.Stat;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author ehlxr
+ * @since 2026-10-19 15:40.
+ */
+public class LockInspectorTest {
+    private static final byte[] LOCAL_ADDRESS = "127.0.0.1".getBytes();
+
+    @Test
+    public void readsOnly() {
+        LockInspector.Snapshot snapshot = inspect(
+                node("read_0000000002", LOCAL_ADDRESS, 0),
+                node("read_0000000001", LOCAL_ADDRESS, 0));
+
+        assertEquals(Arrays.asList("read_0000000001", "read_0000000002"), names(snapshot.getHolders()));
+        assertEquals(Collections.emptyList(), names(snapshot.getWaiters()));
+    }
+
+    @Test
+    public void readsBeforeFirstWrite() {
+        LockInspector.Snapshot snapshot = inspect(
+                node("read_0000000001", LOCAL_ADDRESS, 0),
+                node("write_0000000002", LOCAL_ADDRESS, 0),
+                node("read_0000000003", LOCAL_ADDRESS, 0),
+                node("write_0000000004", LOCAL_ADDRESS, 0));
+
+        assertEquals(Arrays.asList("read_0000000001"), names(snapshot.getHolders()));
+        assertEquals(Arrays.asList("write_0000000002", "read_0000000003", "write_0000000004"),
+                names(snapshot.getWaiters()));
+    }
+
+    @Test
+    public void writesOnly() {
+        LockInspector.Snapshot snapshot = inspect(
+                node("write_0000000003", LOCAL_ADDRESS, 0),
+                node("write_0000000001", LOCAL_ADDRESS, 0),
+                node("write_0000000002", LOCAL_ADDRESS, 0));
+
+        assertEquals(Arrays.asList("write_0000000001"), names(snapshot.getHolders()));
+        assertEquals(Arrays.asList("write_0000000002", "write_0000000003"), names(snapshot.getWaiters()));
+    }
+
+    @Test
+    public void headWriteWaitsOnNewerRead() {
+        // 写锁创建后、读取子节点前又创建了读锁：写锁等待读锁，读锁等待写锁，没有持有者
+        LockInspector.Snapshot snapshot = inspect(
+                node("write_0000000001", LOCAL_ADDRESS, 0),
+                node("read_0000000002", LOCAL_ADDRESS, 0));
+
+        assertEquals(Collections.emptyList(), names(snapshot.getHolders()));
+        assertEquals(Arrays.asList("write_0000000001", "read_0000000002"), names(snapshot.getWaiters()));
+    }
+
+    @Test
+    public void recordedOwners() {
+        // 持有者记录只用于展示，节点版本号不影响判断
+        byte[] owner = BinaryOwnerCodec.INSTANCE.encode(new LockOwner("host-01", 1L, "main", 0L, "test"));
+        LockInspector.Snapshot snapshot = inspect(
+                node("write_0000000002", owner, 0),
+                node("write_0000000003", owner, 1),
+                node("lock", LOCAL_ADDRESS, 0));
+
+        assertEquals(Arrays.asList("write_0000000002"), names(snapshot.getHolders()));
+        assertEquals(Arrays.asList("write_0000000003"), names(snapshot.getWaiters()));
+        assertEquals("host-01", snapshot.getHolders().get(0).getOwner().getHost());
+        assertNull(inspect(node("read_0000000001", LOCAL_ADDRESS, 0)).getHolders().get(0).getOwner());
+    }
+
+    private static LockInspector.Snapshot inspect(ChildData... children) {
+        return LockInspector.inspect(new ArrayList<>(Arrays.asList(children)), BinaryOwnerCodec.INSTANCE);
+    }
+
+    private static ChildData node(String name, byte[] data, int version) {
+        Stat stat = new Stat();
+        stat.setVersion(version);
+        return new ChildData("/test/" + name, stat, data);
+    }
+
+    private static List<String> names(List<LockInspector.Node> nodes) {
+        return nodes.stream().map(LockInspector.Node::getName).collect(Collectors.toList());
+    }
+}
@@ -25,12 +25,21 @@
 package io.github.ehlxr.zkrwlock;
 
 import io.github.ehlxr.zkrwlock.v2.ZkLock;
+import org.apache.curator.framework.CuratorFramework;
+import org.apache.curator.framework.CuratorFrameworkFactory;
+import org.apache.curator.retry.RetryOneTime;
 import org.junit.Test;
 
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.IntStream;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
 /**
  * @author ehlxr
  * @since 2021-02-03 20:54.
@@ -108,4 +117,64 @@ public class ZkRWLockTest {
         latch.await();
         // pool.shutdown();
     }
+
+    @Test
+    public void pipelinedWwTest() throws InterruptedException {
+        // 多于两个写锁，后面的写锁监听的不是第一个写锁，需要先确认上一个写锁已持有锁才能直接交接
+        int writers = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(writers);
+        CyclicBarrier barrier = new CyclicBarrier(writers);
+        CountDownLatch latch = new CountDownLatch(writers);
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger maxHolders = new AtomicInteger();
+        AtomicInteger acquired = new AtomicInteger();
+
+        IntStream.range(0, writers).forEach(i -> pool.execute(() -> {
+            ZkLock lock = new ZkLock(lockName, ZkLock.ReadWriteType.WRITE);
+            lock.setPipelined(true);
+            try {
+                barrier.await();
+
+                lock.lock();
+                maxHolders.accumulateAndGet(holders.incrementAndGet(), Math::max);
+                acquired.incrementAndGet();
+                System.out.println("开始写请求。。。。" + i);
+
+                Thread.sleep(500);
+                holders.decrementAndGet();
+            } catch (Exception e) {
+                e.printStackTrace();
+            } finally {
+                System.out.println("写请求结束。。。。" + i);
+                lock.unLock();
+                latch.countDown();
+            }
+        }));
+
+        latch.await();
+        pool.shutdown();
+
+        assertEquals(writers, acquired.get());
+        assertEquals(1, maxHolders.get());
+    }
+
+    @Test
+    public void pipelinedLockWithoutParent() throws Exception {
+        // 锁资源节点不存在时，后台读取子节点返回 NoNode，需要退回到单独读取而不是留下已创建的节点
+        String name = lockName + "_pipelined";
+        ZkLock lock = new ZkLock(name, ZkLock.ReadWriteType.WRITE);
+        lock.setPipelined(true);
+
+        CuratorFramework client = CuratorFrameworkFactory.newClient("localhost:2181", new RetryOneTime(1000));
+        client.start();
+        try {
+            client.delete().deletingChildrenIfNeeded().forPath("/lock/" + name);
+
+            lock.lock();
+            assertNotNull(client.checkExists().forPath("/lock" + lock.path));
+        } finally {
+            lock.unLock();
+            client.close();
+        }
+    }
 }